@@ -1,40 +1,159 @@
 import java.io.*;
+import java.nio.file.Paths;
 import java.util.*;
 
 public class CSVComparator {
+  // Exit codes; EXIT_DIFFERENT is only returned in verdict mode (--fail-fast / --max-differences)
+  public static final int EXIT_IDENTICAL = 0;
+  public static final int EXIT_DIFFERENT = 1;
+  public static final int EXIT_ERROR = 2;
+
   public static void main(String[] args) {
-    if (args.length != 2) {
-      System.out.println("Usage: java CSVComparator <file1> <file2>");
-      return;
+    int exitCode = run(args);
+    if (exitCode != EXIT_IDENTICAL) {
+      System.exit(exitCode);
+    }
+  }
+
+  // Runs the command line and returns the exit code. Usage and I/O errors always
+  // return EXIT_ERROR; EXIT_DIFFERENT is only used in verdict mode.
+  static int run(String[] args) {
+    if (args.length == 2 && args[0].equals("--report")) {
+      // Report from a previously saved difference file
+      try (DifferenceFileReader reader = new DifferenceFileReader(Paths.get(args[1]))) {
+        new ReportGenerator().generateReport(reader);
+      } catch (IOException e) {
+        System.err.println("Error reading difference file: " + e.getMessage());
+        return EXIT_ERROR;
+      }
+      return EXIT_IDENTICAL;
     }
 
+    List<String> files = new ArrayList<>();
+    String savePath = null;
+    String baselinePath = null;
+    int maxDifferences = 0;
+    boolean alignHeaders = false;
+    CSVScanner scanner = new CSVScanner();
     CSVComparator comparator = new CSVComparator();
+    try {
+      for (int i = 0; i < args.length; i++) {
+        if (args[i].equals("--align-headers")) {
+          alignHeaders = true;
+          comparator.setAlignColumnsByHeader(true);
+        } else if (args[i].equals("--save") && i + 1 < args.length) {
+          savePath = args[++i];
+        } else if (args[i].equals("--baseline") && i + 1 < args.length) {
+          baselinePath = args[++i];
+        } else if (args[i].equals("--fail-fast")) {
+          maxDifferences = 1;
+        } else if (args[i].equals("--max-differences") && i + 1 < args.length) {
+          maxDifferences = Integer.parseInt(args[++i]);
+          if (maxDifferences < 1) throw new IllegalArgumentException("--max-differences must be at least 1");
+        } else if (args[i].equals("--delimiter") && i + 1 < args.length) {
+          scanner = CSVScanner.forDelimiter(args[++i]);
+        } else {
+          files.add(args[i]);
+        }
+      }
+    } catch (IllegalArgumentException e) {
+      System.err.println("Invalid argument: " + e.getMessage());
+      return EXIT_ERROR;
+    }
+
+    if (files.size() != 2) {
+      System.out.println("Usage: java CSVComparator <file1> <file2> [--save <differences.csvd>]"
+          + " [--align-headers] [--delimiter <comma|tab|pipe|semicolon|char>]");
+      System.out.println("       java CSVComparator <expected> <actual> --baseline <baseline>"
+          + " [--fail-fast | --max-differences <n>] [--delimiter <comma|tab|pipe|semicolon|char>]");
+      System.out.println("       java CSVComparator <file1> <file2> --fail-fast | --max-differences <n>"
+          + " [--align-headers] [--delimiter <comma|tab|pipe|semicolon|char>]");
+      System.out.println("       java CSVComparator --report <differences.csvd>");
+      return EXIT_ERROR;
+    }
+    if (savePath != null && (maxDifferences > 0 || baselinePath != null)) {
+      System.err.println("Invalid argument: --save cannot be combined with --baseline, --fail-fast or --max-differences");
+      return EXIT_ERROR;
+    }
+    if (alignHeaders && baselinePath != null) {
+      // The three-way comparison matches columns by position only
+      System.err.println("Invalid argument: --align-headers cannot be combined with --baseline");
+      return EXIT_ERROR;
+    }
+    args = files.toArray(new String[0]);
+
+    if (baselinePath != null) {
+      ThreeWayComparator threeWay = new ThreeWayComparator();
+      threeWay.setScanner(scanner);
+      ThreeWayComparisonResult threeWayResult = threeWay.compareFiles(baselinePath, args[0], args[1], maxDifferences);
+      if (threeWayResult == null) {
+        return EXIT_ERROR;
+      }
+      new ReportGenerator().generateReport(threeWayResult);
+      // In verdict mode only new regressions fail the gate, and count towards --max-differences
+      return maxDifferences > 0 && threeWayResult.hasRegressions() ? EXIT_DIFFERENT : EXIT_IDENTICAL;
+    }
+
+    comparator.setScanner(scanner);
+
+    if (maxDifferences > 0) {
+      // Verdict mode: exit status tells CI whether the files match
+      ComparisonResult verdict = comparator.compareUntil(args[0], args[1], maxDifferences);
+      if (verdict == null) {
+        return EXIT_ERROR;
+      }
+      new ReportGenerator().generateReport(verdict);
+      return verdict.isIdentical() ? EXIT_IDENTICAL : EXIT_DIFFERENT;
+    }
+
+    if (savePath != null) {
+      // Differences go straight to the file as they are found
+      int saved;
+      try (DifferenceFileWriter writer = new DifferenceFileWriter(Paths.get(savePath), args[0], args[1])) {
+        try {
+          writer.setIdentical(comparator.compareFiles(args[0], args[1], writer));
+        } catch (IOException e) {
+          writer.abort();
+          System.err.println("Error reading files: " + e.getMessage());
+          return EXIT_ERROR;
+        }
+        saved = writer.getDifferenceCount();
+      } catch (IOException | UncheckedIOException e) {
+        System.err.println("Error writing difference file: " + e.getMessage());
+        return EXIT_ERROR;
+      }
+      System.out.println("Saved " + saved + " differences to " + savePath);
+      return EXIT_IDENTICAL;
+    }
+
     ComparisonResult result = comparator.compareFiles(args[0], args[1]);
+    if (result == null) {
+      return EXIT_ERROR;
+    }
 
-    if (result != null) {
     // Generate report
     ReportGenerator reporter = new ReportGenerator();
     reporter.generateReport(result);
-    }
+    return EXIT_IDENTICAL;
   }
 
-  public ComparisonResult compareFiles(String file1Path, String file2Path) {
-    try {
-      List<String[]> csv1 = readCSV(file1Path);
-      List<String[]> csv2 = readCSV(file2Path);
+  // When set, columns are matched by header name instead of by position
+  private boolean alignColumnsByHeader = false;
 
-      ComparisonResult result = new ComparisonResult(file1Path, file2Path);
+  public void setAlignColumnsByHeader(boolean alignColumnsByHeader) {
+    this.alignColumnsByHeader = alignColumnsByHeader;
+  }
 
-      // Check to see if files look identical first
-      if (areFilesIdentical(csv1, csv2)) {
-        result.setIdentical(true);
-        return result;
-      }
+  private CSVScanner scanner = new CSVScanner();
 
-      // More detailed comparison
-      compareStructure(csv1, csv2, result);
-      compareContent(csv1, csv2, result);
+  public void setScanner(CSVScanner scanner) {
+    this.scanner = scanner;
+  }
 
+  public ComparisonResult compareFiles(String file1Path, String file2Path) {
+    ComparisonResult result = new ComparisonResult(file1Path, file2Path);
+    try {
+      result.setIdentical(compareFiles(file1Path, file2Path, result));
       return result;
     } catch (IOException e) {
       System.err.println("Error reading files: " + e.getMessage());
@@ -42,40 +161,115 @@ public class CSVComparator {
     }
   }
 
+  // Sends each difference to the sink as soon as it is found and returns whether
+  // the files are identical, so callers that write differences out never hold them all
+  public boolean compareFiles(String file1Path, String file2Path, DifferenceSink result) throws IOException {
+    List<String[]> csv1 = readCSV(file1Path);
+    List<String[]> csv2 = readCSV(file2Path);
 
-  private List<String[]> readCSV(String filePath) throws IOException {
-    List<String[]> data = new ArrayList<>();
-    try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-      String line;
-      while ((line = reader.readLine()) != null) {
-        // Basic CSV parsing
-        String[] values = parseCSVLine(line);
-        data.add(values);
-      }
+    // Check to see if files look identical first
+    if (areFilesIdentical(csv1, csv2)) {
+      return true;
     }
-    return data;
+
+    // More detailed comparison
+    if (alignColumnsByHeader && !csv1.isEmpty() && !csv2.isEmpty()) {
+      compareAligned(csv1, csv2, result);
+      return false;
+    }
+    compareStructure(csv1, csv2, result);
+    compareContent(csv1, csv2, result);
+    return false;
   }
 
-  private String[] parseCSVLine(String line) {
-    List<String> values = new ArrayList<>();
-    boolean inQuotes = false;
-    StringBuilder current = new StringBuilder();
 
-    for (int i = 0; i < line.length(); i++) {
-      char c = line.charAt(i);
+  // Streams both files in step and stops reading once maxDifferences differences are
+  // found, so the cost depends on where the first differences are, not on file size.
+  // The result is marked truncated when it stopped early.
+  public ComparisonResult compareUntil(String file1Path, String file2Path, int maxDifferences) {
+    ComparisonResult result = new ComparisonResult(file1Path, file2Path);
 
-      if (c == '"') {
-        inQuotes = !inQuotes;
-      } else if (c == ',' && !inQuotes) {
-        values.add(current.toString().trim());
-        current = new StringBuilder();
-      } else {
-        current.append(c);
+    try (CSVScanner.RecordReader reader1 = scanner.open(file1Path);
+         CSVScanner.RecordReader reader2 = scanner.open(file2Path)) {
+      String[] header1 = null;
+      String[] header2 = null;
+      int[][] pairs = null;
+      int row = 0;
+      int rows1 = 0;
+      int rows2 = 0;
+
+      while (true) {
+        String[] row1 = reader1.nextRecord();
+        String[] row2 = reader2.nextRecord();
+        if (row1 == null && row2 == null) break;
+        if (row1 != null) rows1++;
+        if (row2 != null) rows2++;
+
+        if (row1 == null) {
+          result.addDifference(new MissingRowDifference(row + 1, "File1", Arrays.toString(trimValues(row2))));
+        } else if (row2 == null) {
+          result.addDifference(new MissingRowDifference(row + 1, "File2", Arrays.toString(trimValues(row1))));
+        } else {
+          trimValues(row1);
+          trimValues(row2);
+          if (row == 0 && alignColumnsByHeader) {
+            header1 = row1;
+            header2 = row2;
+            pairs = matchedColumnPairs(mapColumnsByHeader(header1, header2, result));
+          } else if (pairs != null) {
+            compareAlignedRow(row, row1, row2, header1.length, header2.length, pairs, result);
+          } else {
+            if (row == 0 && row1.length != row2.length) {
+              result.addDifference(new StructuralDifference(
+                "Column count mismatch",
+                "File1: " + row1.length + " columns",
+                "File2: " + row2.length + " columns"
+              ));
+            }
+            compareRow(row, row1, row2, result);
+          }
+        }
+        row++;
+
+        if (result.getDifferenceCount() >= maxDifferences) {
+          // Closing the readers below abandons the rest of both files
+          List<Difference> differences = result.getDifferences();
+          differences.subList(maxDifferences, differences.size()).clear();
+          result.setTruncated(true);
+          return result;
+        }
       }
+
+      // Only known once both files are exhausted, so it is reported last here
+      if (rows1 != rows2) {
+        result.addDifference(new StructuralDifference(
+          "Row count mismatch",
+          "File1: " + rows1 + " rows",
+          "File2: " + rows2 + " rows"
+        ));
+      }
+      result.setIdentical(result.getDifferenceCount() == 0);
+      return result;
+    } catch (IOException e) {
+      System.err.println("Error reading files: " + e.getMessage());
+      return null;
     }
-    values.add(current.toString().trim());
+  }
 
-    return values.toArray(new String[0]);
+  private List<String[]> readCSV(String filePath) throws IOException {
+    List<String[]> data = scanner.readAll(filePath);
+    for (String[] values : data) {
+      trimValues(values);
+    }
+    return data;
+  }
+
+  // Values are compared trimmed, as the line-based parser did
+  static String[] trimValues(String[] values) {
+    for (int i = 0; i < values.length; i++) {
+      values[i] = values[i].trim();
+    }
+    return values;
   }
 
   private boolean areFilesIdentical(List<String[]> csv1, List<String[]> csv2) {
@@ -89,7 +283,7 @@ public class CSVComparator {
     return true;
   }
 
-  private void compareStructure(List<String[]> csv1, List<String[]> csv2, ComparisonResult result) {
+  private void compareStructure(List<String[]> csv1, List<String[]> csv2, DifferenceSink result) {
     // Compare num of row counts
     if (csv1.size() != csv2.size()) {
       result.addDifference(new StructuralDifference(
@@ -114,33 +308,11 @@ public class CSVComparator {
     }
   }
 
-  private void compareContent(List<String[]> csv1, List<String[]> csv2, ComparisonResult result) {
+  private void compareContent(List<String[]> csv1, List<String[]> csv2, DifferenceSink result) {
     int minRows = Math.min(csv1.size(), csv2.size());
 
     for (int row = 0; row < minRows; row++) {
-      String[] row1 = csv1.get(row);
-      String[] row2 = csv2.get(row);
-
-      int minCols = Math.min(row1.length, row2.length);
-
-      for (int col = 0; col < minCols; col++) {
-        if (!row1[col].equals(row2[col])) {
-          result.addDifference(new CellDifference(
-            row + 1, col + 1, // 1-based indexing for user friendly reporting
-            row1[col],
-            row2[col]
-          ));
-        }
-      }
-
-      // Check for missing/extra colums in this row
-      if (row1.length != row2.length) {
-        result.addDifference(new StructuralDifference(
-          "Column count mismatch in row " + (row + 1),
-          "File1: " + row1.length + " columns",
-          "File2: " + row2.length + " columns"
-        ));
-      }
+      compareRow(row, csv1.get(row), csv2.get(row), result);
     }
 
     // Check for missing/extra rows
@@ -156,4 +328,156 @@ public class CSVComparator {
       }
     }
   }
+
+  private void compareRow(int row, String[] row1, String[] row2, DifferenceSink result) {
+    int minCols = Math.min(row1.length, row2.length);
+
+    for (int col = 0; col < minCols; col++) {
+      if (!row1[col].equals(row2[col])) {
+        result.addDifference(new CellDifference(
+          row + 1, col + 1, // 1-based indexing for user friendly reporting
+          row1[col],
+          row2[col]
+        ));
+      }
+    }
+
+    // Check for missing/extra colums in this row
+    if (row1.length != row2.length) {
+      result.addDifference(new StructuralDifference(row + 1,
+        "Column count mismatch in row " + (row + 1),
+        "File1: " + row1.length + " columns",
+        "File2: " + row2.length + " columns"
+      ));
+    }
+  }
+
+  private void compareAligned(List<String[]> csv1, List<String[]> csv2, DifferenceSink result) {
+    if (csv1.size() != csv2.size()) {
+      result.addDifference(new StructuralDifference(
+        "Row count mismatch",
+        "File1: " + csv1.size() + " rows",
+        "File2: " + csv2.size() + " rows"
+      ));
+    }
+
+    String[] header1 = csv1.get(0);
+    String[] header2 = csv2.get(0);
+    int[] mapping = mapColumnsByHeader(header1, header2, result);
+    int[][] pairs = matchedColumnPairs(mapping);
+
+    int minRows = Math.min(csv1.size(), csv2.size());
+    for (int row = 1; row < minRows; row++) {
+      compareAlignedRow(row, csv1.get(row), csv2.get(row), header1.length, header2.length, pairs, result);
+    }
+
+    for (int i = minRows; i < csv1.size(); i++) {
+      result.addDifference(new MissingRowDifference(i + 1, "File2", Arrays.toString(csv1.get(i))));
+    }
+    for (int i = minRows; i < csv2.size(); i++) {
+      result.addDifference(new MissingRowDifference(i + 1, "File1", Arrays.toString(csv2.get(i))));
+    }
+  }
+
+  // Matched column pairs, flattened once so the row loop is a straight scan
+  private int[][] matchedColumnPairs(int[] mapping) {
+    int pairs = 0;
+    for (int col = 0; col < mapping.length; col++) {
+      if (mapping[col] >= 0) pairs++;
+    }
+    int[] cols1 = new int[pairs];
+    int[] cols2 = new int[pairs];
+    for (int col = 0, p = 0; col < mapping.length; col++) {
+      if (mapping[col] >= 0) {
+        cols1[p] = col;
+        cols2[p++] = mapping[col];
+      }
+    }
+    return new int[][] {cols1, cols2};
+  }
+
+  private void compareAlignedRow(int row, String[] row1, String[] row2, int width1, int width2,
+      int[][] pairs, DifferenceSink result) {
+    int[] cols1 = pairs[0];
+    int[] cols2 = pairs[1];
+    for (int p = 0; p < cols1.length; p++) {
+      int col1 = cols1[p];
+      int col2 = cols2[p];
+      boolean present1 = col1 < row1.length;
+      boolean present2 = col2 < row2.length;
+      if (!present1 && !present2) continue;
+
+      // A column missing from only one side's row is compared as an empty value
+      String value1 = present1 ? row1[col1] : "";
+      String value2 = present2 ? row2[col2] : "";
+      if (!present1 || !present2 || !value1.equals(value2)) {
+        result.addDifference(new CellDifference(
+          row + 1, col1 + 1, // reported against file1's column layout
+          value1,
+          value2
+        ));
+      }
+    }
+
+    // Rows that are wider or narrower than their own header
+    if (row1.length - width1 != row2.length - width2) {
+      result.addDifference(new StructuralDifference(row + 1,
+        "Column count mismatch in row " + (row + 1),
+        "File1: " + row1.length + " columns",
+        "File2: " + row2.length + " columns"
+      ));
+    }
+  }
+
+  // Maps each file1 column to its file2 column by header name (-1 if removed),
+  // reporting removed, added and reordered columns once
+  private int[] mapColumnsByHeader(String[] header1, String[] header2, DifferenceSink result) {
+    Map<String, Deque<Integer>> positions2 = new HashMap<>();
+    for (int col = 0; col < header2.length; col++) {
+      positions2.computeIfAbsent(header2[col], k -> new ArrayDeque<>()).add(col);
+    }
+
+    int[] mapping = new int[header1.length];
+    boolean[] matched2 = new boolean[header2.length];
+    for (int col = 0; col < header1.length; col++) {
+      Deque<Integer> candidates = positions2.get(header1[col]);
+      if (candidates == null || candidates.isEmpty()) {
+        mapping[col] = -1;
+        result.addDifference(new StructuralDifference(
+          "Column removed: " + header1[col],
+          "File1: column " + (col + 1),
+          "File2: not present"
+        ));
+      } else {
+        mapping[col] = candidates.poll();
+        matched2[mapping[col]] = true;
+      }
+    }
+
+    for (int col = 0; col < header2.length; col++) {
+      if (!matched2[col]) {
+        result.addDifference(new StructuralDifference(
+          "Column added: " + header2[col],
+          "File1: not present",
+          "File2: column " + (col + 1)
+        ));
+      }
+    }
+
+    int previous = -1;
+    for (int target : mapping) {
+      if (target < 0) continue;
+      if (target < previous) {
+        result.addDifference(new StructuralDifference(
+          "Column order changed",
+          "File1: " + String.join(", ", header1),
+          "File2: " + String.join(", ", header2)
+        ));
+        break;
+      }
+      previous = target;
+    }
+
+    return mapping;
+  }
 }
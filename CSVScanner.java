@@ -0,0 +1,253 @@
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// RFC 4180 CSV scanner. Delimiters, quotes and line breaks are located eight bytes
+// at a time by treating each long word as eight byte lanes (SWAR), so long runs of
+// plain field content are skipped without looking at every byte.
+public class CSVScanner {
+  private static final VarHandle LONG_VIEW =
+      MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+  private static final long ONES = 0x0101010101010101L;
+  private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+  private static final byte QUOTE = '"';
+  private static final byte LF = '\n';
+  private static final byte CR = '\r';
+
+  private final byte delimiter;
+  private final int bufferSize;
+
+  public CSVScanner() {
+    this(',');
+  }
+
+  public CSVScanner(char delimiter) {
+    this(delimiter, DEFAULT_BUFFER_SIZE);
+  }
+
+  CSVScanner(char delimiter, int bufferSize) {
+    if (delimiter > 0x7F || delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+      throw new IllegalArgumentException("Unsupported delimiter: '" + delimiter + "'");
+    }
+    this.delimiter = (byte) delimiter;
+    this.bufferSize = Math.max(16, bufferSize);
+  }
+
+  // Accepts a single character or one of the names comma, tab, pipe, semicolon
+  public static CSVScanner forDelimiter(String name) {
+    switch (name.toLowerCase()) {
+      case "comma": return new CSVScanner(',');
+      case "tab": case "\\t": return new CSVScanner('\t');
+      case "pipe": return new CSVScanner('|');
+      case "semicolon": return new CSVScanner(';');
+      default:
+        if (name.length() != 1) throw new IllegalArgumentException("Unknown delimiter: " + name);
+        return new CSVScanner(name.charAt(0));
+    }
+  }
+
+  public List<String[]> readAll(String filePath) throws IOException {
+    List<String[]> data = new ArrayList<>();
+    try (RecordReader reader = open(filePath)) {
+      String[] record;
+      while ((record = reader.nextRecord()) != null) {
+        data.add(record);
+      }
+    }
+    return data;
+  }
+
+  public RecordReader open(String filePath) throws IOException {
+    return new RecordReader(Files.newInputStream(Paths.get(filePath)));
+  }
+
+  public RecordReader open(InputStream in) {
+    return new RecordReader(in);
+  }
+
+  // Bytes equal to the broadcast pattern get their high bit set, all others are zero
+  private static long matches(long word, long pattern) {
+    long t = word ^ pattern;
+    return ~(((t & LOW_BITS) + LOW_BITS) | t | LOW_BITS);
+  }
+
+  public class RecordReader implements Closeable {
+    private final InputStream in;
+    private final long delimiterPattern = (delimiter & 0xFF) * ONES;
+    private final long quotePattern = QUOTE * ONES;
+    private final long lfPattern = LF * ONES;
+    private final long crPattern = CR * ONES;
+
+    private byte[] buf = new byte[bufferSize];
+    private int limit = 0;
+    private int pos = 0;
+    private boolean eof = false;
+
+    // Current field; its bytes stay contiguous in buf from fieldStart
+    private int fieldStart = 0;
+    private boolean quoted = false;
+    private boolean inQuotes = false;
+    private boolean escapedQuotes = false;
+    private int quoteEnd = -1;
+    private boolean skipLineFeed = false;
+
+    RecordReader(InputStream in) {
+      this.in = in;
+    }
+
+    // Next record, or null at end of input
+    public String[] nextRecord() throws IOException {
+      List<String> fields = new ArrayList<>();
+
+      while (true) {
+        if (pos >= limit && !fill()) {
+          if (fields.isEmpty() && pos == fieldStart && !quoted) return null;
+          fields.add(finishField(pos));
+          fieldStart = pos;
+          return fields.toArray(new String[0]);
+        }
+
+        if (skipLineFeed) {
+          skipLineFeed = false;
+          if (buf[pos] == LF && pos == fieldStart) {
+            pos = ++fieldStart;
+            continue;
+          }
+        }
+
+        int i = find(pos);
+        if (i == limit) {
+          pos = limit;
+          continue;
+        }
+        byte b = buf[i];
+
+        if (inQuotes) {
+          // b is a quote: either an escaped "" or the closing quote
+          if (i + 1 >= limit) {
+            pos = i;
+            if (fill()) continue;
+            i = pos;
+          }
+          if (i + 1 < limit && buf[i + 1] == QUOTE) {
+            escapedQuotes = true;
+            pos = i + 2;
+          } else {
+            inQuotes = false;
+            quoteEnd = i;
+            pos = i + 1;
+          }
+        } else if (b == QUOTE) {
+          // Only a quote opening a field is special; stray quotes are kept as data
+          if (i == fieldStart) {
+            quoted = true;
+            inQuotes = true;
+          }
+          pos = i + 1;
+        } else if (b == delimiter) {
+          fields.add(finishField(i));
+          pos = fieldStart = i + 1;
+        } else {
+          // CR, LF or CRLF ends the record
+          fields.add(finishField(i));
+          pos = fieldStart = i + 1;
+          skipLineFeed = b == CR;
+          return fields.toArray(new String[0]);
+        }
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+
+    // Position of the next byte that can change parser state, or limit
+    private int find(int from) {
+      int i = from;
+      if (inQuotes) {
+        for (; i + 8 <= limit; i += 8) {
+          long mask = matches((long) LONG_VIEW.get(buf, i), quotePattern);
+          if (mask != 0) return i + (Long.numberOfTrailingZeros(mask) >>> 3);
+        }
+        for (; i < limit; i++) {
+          if (buf[i] == QUOTE) return i;
+        }
+        return limit;
+      }
+
+      for (; i + 8 <= limit; i += 8) {
+        long word = (long) LONG_VIEW.get(buf, i);
+        long mask = matches(word, delimiterPattern) | matches(word, quotePattern)
+            | matches(word, lfPattern) | matches(word, crPattern);
+        if (mask != 0) return i + (Long.numberOfTrailingZeros(mask) >>> 3);
+      }
+      for (; i < limit; i++) {
+        byte b = buf[i];
+        if (b == delimiter || b == QUOTE || b == LF || b == CR) return i;
+      }
+      return limit;
+    }
+
+    private String finishField(int end) {
+      String value;
+      if (!quoted) {
+        value = new String(buf, fieldStart, end - fieldStart, StandardCharsets.UTF_8);
+      } else {
+        int contentEnd = quoteEnd >= 0 ? quoteEnd : end; // unterminated quote runs to end of input
+        value = escapedQuotes
+            ? unescape(fieldStart + 1, contentEnd)
+            : new String(buf, fieldStart + 1, contentEnd - fieldStart - 1, StandardCharsets.UTF_8);
+        if (quoteEnd >= 0 && quoteEnd + 1 < end) {
+          value += new String(buf, quoteEnd + 1, end - quoteEnd - 1, StandardCharsets.UTF_8);
+        }
+      }
+      quoted = false;
+      inQuotes = false;
+      escapedQuotes = false;
+      quoteEnd = -1;
+      return value;
+    }
+
+    private String unescape(int start, int end) {
+      byte[] out = new byte[end - start];
+      int n = 0;
+      for (int i = start; i < end; i++) {
+        out[n++] = buf[i];
+        if (buf[i] == QUOTE) i++;
+      }
+      return new String(out, 0, n, StandardCharsets.UTF_8);
+    }
+
+    // Moves the current field to the front of the buffer and reads more input
+    private boolean fill() throws IOException {
+      if (eof) return false;
+
+      int keep = limit - fieldStart;
+      if (keep == buf.length) {
+        buf = Arrays.copyOf(buf, buf.length * 2);
+      }
+      if (fieldStart > 0) {
+        System.arraycopy(buf, fieldStart, buf, 0, keep);
+        pos -= fieldStart;
+        if (quoteEnd >= 0) quoteEnd -= fieldStart;
+        fieldStart = 0;
+        limit = keep;
+      }
+
+      int read = in.read(buf, limit, buf.length - limit);
+      if (read < 0) {
+        eof = true;
+        return false;
+      }
+      limit += read;
+      return true;
+    }
+  }
+}
@@ -0,0 +1,122 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+// Throughput of CSVScanner against the previous line-by-line parser.
+// Usage: java CSVScannerBenchmark [megabytes per file]
+public class CSVScannerBenchmark {
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) throws IOException {
+    int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+
+    Path narrow = Files.createTempFile("bench_narrow", ".csv");
+    Path wide = Files.createTempFile("bench_wide", ".csv");
+    try {
+      writeFile(narrow, 4, megabytes);
+      writeFile(wide, 200, megabytes);
+
+      System.out.println("=".repeat(60));
+      System.out.println("CSV SCANNER BENCHMARK");
+      System.out.println("=".repeat(60));
+      run("Narrow (4 columns)", narrow);
+      run("Wide (200 columns)", wide);
+      System.out.println("=".repeat(60));
+    } finally {
+      Files.deleteIfExists(narrow);
+      Files.deleteIfExists(wide);
+    }
+  }
+
+  private static void run(String label, Path file) throws IOException {
+    double megabytes = Files.size(file) / (1024.0 * 1024.0);
+    long scalar = Long.MAX_VALUE;
+    long scanner = Long.MAX_VALUE;
+    long checksum = 0;
+
+    // Best of several rounds, first ones double as JIT warm-up
+    for (int round = 0; round < ROUNDS; round++) {
+      long start = System.nanoTime();
+      checksum += readScalar(file.toString());
+      scalar = Math.min(scalar, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      checksum += readScanner(file.toString());
+      scanner = Math.min(scanner, System.nanoTime() - start);
+    }
+
+    System.out.printf("%s, %.1f MB%n", label, megabytes);
+    System.out.printf("  Line parser: %8.1f MB/s%n", megabytes / (scalar / 1e9));
+    System.out.printf("  CSVScanner:  %8.1f MB/s%n", megabytes / (scanner / 1e9));
+    System.out.printf("  Speedup:     %8.2fx  (checksum %d)%n", (double) scalar / scanner, checksum);
+  }
+
+  private static long readScanner(String file) throws IOException {
+    long fields = 0;
+    try (CSVScanner.RecordReader reader = new CSVScanner().open(file)) {
+      String[] record;
+      while ((record = reader.nextRecord()) != null) {
+        fields += record.length;
+      }
+    }
+    return fields;
+  }
+
+  private static long readScalar(String file) throws IOException {
+    long fields = 0;
+    try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        fields += parseCSVLine(line).length;
+      }
+    }
+    return fields;
+  }
+
+  // The line-based parser CSVComparator used before CSVScanner
+  private static String[] parseCSVLine(String line) {
+    List<String> values = new ArrayList<>();
+    boolean inQuotes = false;
+    StringBuilder current = new StringBuilder();
+
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+
+      if (c == '"') {
+        inQuotes = !inQuotes;
+      } else if (c == ',' && !inQuotes) {
+        values.add(current.toString().trim());
+        current = new StringBuilder();
+      } else {
+        current.append(c);
+      }
+    }
+    values.add(current.toString().trim());
+
+    return values.toArray(new String[0]);
+  }
+
+  private static void writeFile(Path file, int columns, int megabytes) throws IOException {
+    long target = megabytes * 1024L * 1024L;
+    Random random = new Random(42);
+    try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+      long written = 0;
+      StringBuilder line = new StringBuilder();
+      for (int row = 0; written < target; row++) {
+        line.setLength(0);
+        for (int col = 0; col < columns; col++) {
+          if (col > 0) line.append(',');
+          switch (col % 4) {
+            case 0: line.append(row); break;
+            case 1: line.append("Customer name ").append(random.nextInt(100000)); break;
+            case 2: line.append(random.nextInt(1000000) / 100.0); break;
+            default: line.append("\"Street ").append(random.nextInt(1000)).append(", City\""); break;
+          }
+        }
+        line.append('\n');
+        writer.write(line.toString());
+        written += line.length();
+      }
+    }
+  }
+}
@@ -1,9 +1,10 @@
 import java.util.*;
 
-public class ComparisonResult {
+public class ComparisonResult implements DifferenceSink {
   private String file1Path;
   private String file2Path;
   private boolean identical = false;
+  private boolean truncated = false;
   private List<Difference> differences;
 
   public ComparisonResult(String file1Path, String file2Path) {
@@ -12,6 +13,7 @@ public class ComparisonResult {
     this.differences = new ArrayList<>();
   }
 
+  @Override
   public void addDifference(Difference difference) {
     differences.add(difference);
   }
@@ -22,6 +24,8 @@ public class ComparisonResult {
   public String getFile2Path() { return file2Path; }
   public boolean isIdentical() { return identical; }
   public void setIdentical(boolean identical) { this.identical = identical; }
+  public boolean isTruncated() { return truncated; }
+  public void setTruncated(boolean truncated) { this.truncated = truncated; }
   public List<Difference> getDifferences() { return differences; }
   public int getDifferenceCount() { return differences.size(); }
 }
@@ -0,0 +1,19 @@
+// How a difference between actual and expected output relates to the baseline run
+enum DifferenceClassification {
+  NEW_REGRESSION("New Regression"),  // baseline matched expected, actual does not
+  PRE_EXISTING("Pre-existing"),      // baseline and actual both differ from expected
+  FIXED("Fixed");                    // baseline differed from expected, actual matches
+
+  private final String label;
+
+  DifferenceClassification(String label) {
+    this.label = label;
+  }
+
+  public String getLabel() { return label; }
+
+  static DifferenceClassification classify(boolean actualDiffers, boolean baselineDiffers) {
+    if (actualDiffers) return baselineDiffers ? PRE_EXISTING : NEW_REGRESSION;
+    return baselineDiffers ? FIXED : null;
+  }
+}
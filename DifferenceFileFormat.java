@@ -0,0 +1,48 @@
+// Layout of the binary difference file (all values big-endian):
+//
+//   header   : magic, version, flags, file1 id, file2 id, record count,
+//              dictionary size, column directory size, column index size, reserved
+//   sections : SECTION_COUNT x (offset, length) longs
+//   then each section, 8-byte aligned:
+//     DICT_OFFSETS  long[dictSize + 1]  start of each string in DICT_DATA
+//     DICT_DATA     UTF-8 bytes of every distinct string
+//     KIND          byte[records]
+//     ROW, COLUMN   int[records]        row is 0 for whole-file structural records
+//     VALUE1..3     int[records]        dictionary ids, NO_VALUE when unused
+//     ROW_INDEX     int[records]        record ids sorted by row
+//     COLUMN_DIR    (column, start, count) int triples into COLUMN_INDEX
+//     COLUMN_INDEX  int[cell records]   cell record ids sorted by column then row
+final class DifferenceFileFormat {
+  static final int MAGIC = 0x43535644; // "CSVD"
+  static final int VERSION = 1;
+
+  static final int FLAG_IDENTICAL = 1;
+
+  static final byte KIND_CELL = 1;
+  static final byte KIND_STRUCTURAL = 2;
+  static final byte KIND_MISSING_ROW = 3;
+
+  static final int NO_VALUE = -1;
+
+  static final int DICT_OFFSETS = 0;
+  static final int DICT_DATA = 1;
+  static final int KIND = 2;
+  static final int ROW = 3;
+  static final int COLUMN = 4;
+  static final int VALUE1 = 5;
+  static final int VALUE2 = 6;
+  static final int VALUE3 = 7;
+  static final int ROW_INDEX = 8;
+  static final int COLUMN_DIR = 9;
+  static final int COLUMN_INDEX = 10;
+  static final int SECTION_COUNT = 11;
+
+  static final int HEADER_INTS = 10;
+  static final int HEADER_SIZE = HEADER_INTS * 4 + SECTION_COUNT * 16;
+
+  private DifferenceFileFormat() {}
+
+  static long align(long position) {
+    return (position + 7) & ~7L;
+  }
+}
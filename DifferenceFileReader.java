@@ -0,0 +1,293 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.IntUnaryOperator;
+
+public class DifferenceFileReader implements Closeable {
+  // Sections are mapped lazily in pages of this size, so files larger than 2GB still work
+  private static final int PAGE_SIZE = 1 << 24;
+
+  private final FileChannel channel;
+  private final boolean identical;
+  private final int recordCount;
+  private final int columnDirSize;
+  private final String file1Path;
+  private final String file2Path;
+
+  private final Section dictOffsets;
+  private final Section dictData;
+  private final Section kinds;
+  private final Section rows;
+  private final Section columns;
+  private final Section values1;
+  private final Section values2;
+  private final Section values3;
+  private final Section rowIndex;
+  private final Section columnDir;
+  private final Section columnIndex;
+
+  public DifferenceFileReader(Path file) throws IOException {
+    channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      ByteBuffer header = ByteBuffer.allocate(DifferenceFileFormat.HEADER_SIZE);
+      while (header.hasRemaining()) {
+        if (channel.read(header, header.position()) < 0) {
+          throw new IOException("Truncated difference file: " + file);
+        }
+      }
+      header.flip();
+
+      if (header.getInt() != DifferenceFileFormat.MAGIC) {
+        throw new IOException("Not a difference file: " + file);
+      }
+      int version = header.getInt();
+      if (version != DifferenceFileFormat.VERSION) {
+        throw new IOException("Unsupported difference file version: " + version);
+      }
+      identical = (header.getInt() & DifferenceFileFormat.FLAG_IDENTICAL) != 0;
+      int file1Id = header.getInt();
+      int file2Id = header.getInt();
+      recordCount = header.getInt();
+      header.getInt(); // dictionary size, implied by the offsets section
+      columnDirSize = header.getInt();
+      header.getInt(); // column index size, implied by the directory
+      header.getInt();
+
+      Section[] sections = new Section[DifferenceFileFormat.SECTION_COUNT];
+      for (int i = 0; i < sections.length; i++) {
+        sections[i] = new Section(header.getLong(), header.getLong());
+      }
+      dictOffsets = sections[DifferenceFileFormat.DICT_OFFSETS];
+      dictData = sections[DifferenceFileFormat.DICT_DATA];
+      kinds = sections[DifferenceFileFormat.KIND];
+      rows = sections[DifferenceFileFormat.ROW];
+      columns = sections[DifferenceFileFormat.COLUMN];
+      values1 = sections[DifferenceFileFormat.VALUE1];
+      values2 = sections[DifferenceFileFormat.VALUE2];
+      values3 = sections[DifferenceFileFormat.VALUE3];
+      rowIndex = sections[DifferenceFileFormat.ROW_INDEX];
+      columnDir = sections[DifferenceFileFormat.COLUMN_DIR];
+      columnIndex = sections[DifferenceFileFormat.COLUMN_INDEX];
+
+      file1Path = string(file1Id);
+      file2Path = string(file2Id);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  // Getters
+  public String getFile1Path() { return file1Path; }
+  public String getFile2Path() { return file2Path; }
+  public boolean isIdentical() { return identical; }
+  public int getDifferenceCount() { return recordCount; }
+
+  // Difference types present in the file, in the order they first appear
+  public List<String> getDifferenceTypes() {
+    List<String> types = new ArrayList<>();
+    boolean[] seen = new boolean[4];
+    for (int id = 0; id < recordCount; id++) {
+      byte kind = kinds.getByte(id);
+      if (!seen[kind]) {
+        seen[kind] = true;
+        types.add(typeName(kind));
+      }
+    }
+    return types;
+  }
+
+  // All differences in the order they were written
+  public Iterable<Difference> differences() {
+    return records(0, recordCount, pos -> pos);
+  }
+
+  public Iterable<Difference> differencesOfType(String type) {
+    byte kind = kindOf(type);
+    return () -> new Iterator<Difference>() {
+      private int next = advance(0);
+
+      private int advance(int from) {
+        while (from < recordCount && kinds.getByte(from) != kind) {
+          from++;
+        }
+        return from;
+      }
+
+      @Override
+      public boolean hasNext() { return next < recordCount; }
+
+      @Override
+      public Difference next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        Difference diff = record(next);
+        next = advance(next + 1);
+        return diff;
+      }
+    };
+  }
+
+  // Differences located in rows fromRow..toRow (1-based, inclusive). Whole-file
+  // structural differences such as a row count mismatch belong to no row and are skipped.
+  public Iterable<Difference> differencesInRows(int fromRow, int toRow) {
+    int start = lowerBound(rowIndex, 0, recordCount, fromRow);
+    int end = lowerBound(rowIndex, start, recordCount, toRow + 1L);
+    return records(start, end, pos -> rowIndex.getInt(4L * pos));
+  }
+
+  // Cell differences in one column (1-based) within rows fromRow..toRow
+  public Iterable<Difference> differencesInColumn(int column, int fromRow, int toRow) {
+    int low = 0;
+    int high = columnDirSize - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int midColumn = columnDir.getInt(12L * mid);
+      if (midColumn < column) {
+        low = mid + 1;
+      } else if (midColumn > column) {
+        high = mid - 1;
+      } else {
+        int first = columnDir.getInt(12L * mid + 4);
+        int last = first + columnDir.getInt(12L * mid + 8);
+        int start = lowerBound(columnIndex, first, last, fromRow);
+        int end = lowerBound(columnIndex, start, last, toRow + 1L);
+        return records(start, end, pos -> columnIndex.getInt(4L * pos));
+      }
+    }
+    return Collections.emptyList();
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  // First position in [from, to) of an index whose record row is >= row
+  private int lowerBound(Section index, int from, int to, long row) {
+    while (from < to) {
+      int mid = (from + to) >>> 1;
+      int id = index.getInt(4L * mid);
+      if (rows.getInt(4L * id) < row) {
+        from = mid + 1;
+      } else {
+        to = mid;
+      }
+    }
+    return from;
+  }
+
+  private Iterable<Difference> records(int from, int to, IntUnaryOperator idAt) {
+    return () -> new Iterator<Difference>() {
+      private int pos = from;
+
+      @Override
+      public boolean hasNext() { return pos < to; }
+
+      @Override
+      public Difference next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return record(idAt.applyAsInt(pos++));
+      }
+    };
+  }
+
+  private Difference record(int id) {
+    long at = 4L * id;
+    byte kind = kinds.getByte(id);
+    switch (kind) {
+      case DifferenceFileFormat.KIND_CELL:
+        return new CellDifference(rows.getInt(at), columns.getInt(at),
+            string(values1.getInt(at)), string(values2.getInt(at)));
+      case DifferenceFileFormat.KIND_STRUCTURAL:
+        return new StructuralDifference(rows.getInt(at), string(values1.getInt(at)),
+            string(values2.getInt(at)), string(values3.getInt(at)));
+      case DifferenceFileFormat.KIND_MISSING_ROW:
+        return new MissingRowDifference(rows.getInt(at),
+            string(values1.getInt(at)), string(values2.getInt(at)));
+      default:
+        throw new IllegalStateException("Corrupt difference file: unknown kind " + kind);
+    }
+  }
+
+  private String string(int id) {
+    if (id == DifferenceFileFormat.NO_VALUE) return null;
+
+    long start = dictOffsets.getLong(8L * id);
+    long end = dictOffsets.getLong(8L * id + 8);
+    byte[] bytes = new byte[(int) (end - start)];
+    dictData.getBytes(start, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static String typeName(byte kind) {
+    switch (kind) {
+      case DifferenceFileFormat.KIND_CELL: return "Cell Value Difference";
+      case DifferenceFileFormat.KIND_STRUCTURAL: return "Structural Difference";
+      case DifferenceFileFormat.KIND_MISSING_ROW: return "Missing Row";
+      default: throw new IllegalStateException("Corrupt difference file: unknown kind " + kind);
+    }
+  }
+
+  private static byte kindOf(String type) {
+    for (byte kind = DifferenceFileFormat.KIND_CELL; kind <= DifferenceFileFormat.KIND_MISSING_ROW; kind++) {
+      if (typeName(kind).equals(type)) return kind;
+    }
+    throw new IllegalArgumentException("Unknown difference type: " + type);
+  }
+
+  // A file region mapped on demand, one page at a time
+  private class Section {
+    private final long offset;
+    private final long length;
+    private final MappedByteBuffer[] pages;
+
+    Section(long offset, long length) {
+      this.offset = offset;
+      this.length = length;
+      this.pages = new MappedByteBuffer[(int) ((length + PAGE_SIZE - 1) / PAGE_SIZE)];
+    }
+
+    // Page size is a multiple of 8 and sections are 8-byte aligned, so ints and longs never straddle pages
+    private MappedByteBuffer page(long position) {
+      int p = (int) (position / PAGE_SIZE);
+      if (pages[p] == null) {
+        long start = (long) p * PAGE_SIZE;
+        try {
+          pages[p] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start,
+              Math.min(PAGE_SIZE, length - start));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+      return pages[p];
+    }
+
+    byte getByte(long position) {
+      return page(position).get((int) (position % PAGE_SIZE));
+    }
+
+    int getInt(long position) {
+      return page(position).getInt((int) (position % PAGE_SIZE));
+    }
+
+    long getLong(long position) {
+      return page(position).getLong((int) (position % PAGE_SIZE));
+    }
+
+    void getBytes(long position, byte[] dst) {
+      int copied = 0;
+      while (copied < dst.length) {
+        MappedByteBuffer page = page(position);
+        int inPage = (int) (position % PAGE_SIZE);
+        int n = Math.min(dst.length - copied, page.capacity() - inPage);
+        page.duplicate().position(inPage).get(dst, copied, n);
+        copied += n;
+        position += n;
+      }
+    }
+  }
+}
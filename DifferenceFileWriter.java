@@ -0,0 +1,368 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+public class DifferenceFileWriter implements Closeable, DifferenceSink {
+  private final Path target;
+  private int file1Id;
+  private int file2Id;
+  private boolean identical = false;
+  private boolean closed = false;
+  // Set when a write fails or the caller aborts; close() then leaves the target untouched
+  private boolean aborted = false;
+
+  // Shared string dictionary; string bytes are spilled to disk as they are added
+  private final Map<String, Integer> dictionary = new HashMap<>();
+  private long[] dictOffsets = new long[1024];
+
+  // Rows and columns stay in memory because the indexes are sorted on them at close
+  private int recordCount = 0;
+  private int cellCount = 0;
+  private int[] rows = new int[1024];
+  private int[] columns = new int[1024];
+
+  private final Path[] spillFiles = new Path[5];
+  private DataOutputStream dictData;
+  private DataOutputStream kinds;
+  private DataOutputStream values1;
+  private DataOutputStream values2;
+  private DataOutputStream values3;
+  private long dictBytes = 0;
+
+  public DifferenceFileWriter(Path target, String file1Path, String file2Path) throws IOException {
+    this.target = target;
+    try {
+      dictData = openSpill(0);
+      kinds = openSpill(1);
+      values1 = openSpill(2);
+      values2 = openSpill(3);
+      values3 = openSpill(4);
+      file1Id = intern(file1Path);
+      file2Id = intern(file2Path);
+    } catch (IOException | RuntimeException e) {
+      abort();
+      close();
+      throw e;
+    }
+  }
+
+  public static void save(ComparisonResult result, Path target) throws IOException {
+    try (DifferenceFileWriter writer =
+        new DifferenceFileWriter(target, result.getFile1Path(), result.getFile2Path())) {
+      writer.setIdentical(result.isIdentical());
+      for (Difference diff : result.getDifferences()) {
+        writer.write(diff);
+      }
+    }
+  }
+
+  public void setIdentical(boolean identical) { this.identical = identical; }
+  public int getDifferenceCount() { return recordCount; }
+
+  // Discards everything written so far; close() will not create or replace the target
+  public void abort() {
+    aborted = true;
+  }
+
+  @Override
+  public void addDifference(Difference diff) {
+    try {
+      write(diff);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public void write(Difference diff) throws IOException {
+    try {
+      encode(diff);
+    } catch (IOException | RuntimeException e) {
+      aborted = true;
+      throw e;
+    }
+  }
+
+  private void encode(Difference diff) throws IOException {
+    if (diff instanceof CellDifference) {
+      CellDifference cell = (CellDifference) diff;
+      append(DifferenceFileFormat.KIND_CELL, cell.getRow(), cell.getColumn(),
+          intern(cell.getValue1()), intern(cell.getValue2()), DifferenceFileFormat.NO_VALUE);
+      cellCount++;
+    } else if (diff instanceof StructuralDifference) {
+      StructuralDifference structural = (StructuralDifference) diff;
+      append(DifferenceFileFormat.KIND_STRUCTURAL, structural.getRow(), 0,
+          intern(structural.getDescription()), intern(structural.getFile1Info()),
+          intern(structural.getFile2Info()));
+    } else if (diff instanceof MissingRowDifference) {
+      MissingRowDifference missing = (MissingRowDifference) diff;
+      append(DifferenceFileFormat.KIND_MISSING_ROW, missing.getRowNumber(), 0,
+          intern(missing.getMissingFromFile()), intern(missing.getRowContent()),
+          DifferenceFileFormat.NO_VALUE);
+    } else {
+      throw new IllegalArgumentException("Unsupported difference type: " + diff.getType());
+    }
+  }
+
+  private void append(byte kind, int row, int column, int v1, int v2, int v3) throws IOException {
+    if (recordCount == rows.length) {
+      rows = Arrays.copyOf(rows, rows.length * 2);
+      columns = Arrays.copyOf(columns, columns.length * 2);
+    }
+    rows[recordCount] = row;
+    columns[recordCount] = column;
+    recordCount++;
+
+    kinds.writeByte(kind);
+    values1.writeInt(v1);
+    values2.writeInt(v2);
+    values3.writeInt(v3);
+  }
+
+  private int intern(String value) throws IOException {
+    if (value == null) return DifferenceFileFormat.NO_VALUE;
+
+    Integer id = dictionary.get(value);
+    if (id != null) return id;
+
+    id = dictionary.size();
+    dictionary.put(value, id);
+    if (id + 1 >= dictOffsets.length) {
+      dictOffsets = Arrays.copyOf(dictOffsets, dictOffsets.length * 2);
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    dictData.write(bytes);
+    dictOffsets[id] = dictBytes;
+    dictBytes += bytes.length;
+    dictOffsets[id + 1] = dictBytes;
+    return id;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) return;
+    closed = true;
+
+    try {
+      IOException failure = null;
+      for (DataOutputStream spill : new DataOutputStream[] {dictData, kinds, values1, values2, values3}) {
+        try {
+          if (spill != null) spill.close();
+        } catch (IOException e) {
+          if (failure == null) failure = e;
+        }
+      }
+      if (aborted) return;
+      if (failure != null) throw failure;
+      writeTarget();
+    } finally {
+      for (Path spill : spillFiles) {
+        if (spill != null) Files.deleteIfExists(spill);
+      }
+    }
+  }
+
+  private void writeTarget() throws IOException {
+    int[] rowIndex = buildRowIndex();
+    int[] columnIndex = buildColumnIndex(rowIndex);
+    int[] columnDir = buildColumnDirectory(columnIndex);
+    int dictSize = dictionary.size();
+
+    long[] lengths = new long[DifferenceFileFormat.SECTION_COUNT];
+    lengths[DifferenceFileFormat.DICT_OFFSETS] = 8L * (dictSize + 1);
+    lengths[DifferenceFileFormat.DICT_DATA] = dictBytes;
+    lengths[DifferenceFileFormat.KIND] = recordCount;
+    lengths[DifferenceFileFormat.ROW] = 4L * recordCount;
+    lengths[DifferenceFileFormat.COLUMN] = 4L * recordCount;
+    lengths[DifferenceFileFormat.VALUE1] = 4L * recordCount;
+    lengths[DifferenceFileFormat.VALUE2] = 4L * recordCount;
+    lengths[DifferenceFileFormat.VALUE3] = 4L * recordCount;
+    lengths[DifferenceFileFormat.ROW_INDEX] = 4L * rowIndex.length;
+    lengths[DifferenceFileFormat.COLUMN_DIR] = 4L * columnDir.length;
+    lengths[DifferenceFileFormat.COLUMN_INDEX] = 4L * columnIndex.length;
+
+    long[] offsets = new long[DifferenceFileFormat.SECTION_COUNT];
+    long position = DifferenceFileFormat.HEADER_SIZE;
+    for (int i = 0; i < offsets.length; i++) {
+      offsets[i] = DifferenceFileFormat.align(position);
+      position = offsets[i] + lengths[i];
+    }
+
+    // Written next to the target and moved into place, so readers never see a partial file
+    Path partial = Files.createTempFile(target.toAbsolutePath().getParent(), "csvd", ".partial");
+    try {
+      writeSections(partial, offsets, lengths, rowIndex, columnIndex, columnDir, dictSize);
+      try {
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(partial);
+    }
+  }
+
+  private void writeSections(Path file, long[] offsets, long[] lengths, int[] rowIndex,
+      int[] columnIndex, int[] columnDir, int dictSize) throws IOException {
+    try (CountingOutput out = new CountingOutput(Files.newOutputStream(file))) {
+      out.writeInt(DifferenceFileFormat.MAGIC);
+      out.writeInt(DifferenceFileFormat.VERSION);
+      out.writeInt(identical ? DifferenceFileFormat.FLAG_IDENTICAL : 0);
+      out.writeInt(file1Id);
+      out.writeInt(file2Id);
+      out.writeInt(recordCount);
+      out.writeInt(dictSize);
+      out.writeInt(columnDir.length / 3);
+      out.writeInt(columnIndex.length);
+      out.writeInt(0);
+      for (int i = 0; i < offsets.length; i++) {
+        out.writeLong(offsets[i]);
+        out.writeLong(lengths[i]);
+      }
+
+      out.padTo(offsets[DifferenceFileFormat.DICT_OFFSETS]);
+      for (int i = 0; i <= dictSize; i++) {
+        out.writeLong(dictOffsets[i]);
+      }
+      out.padTo(offsets[DifferenceFileFormat.DICT_DATA]);
+      out.copy(spillFiles[0]);
+      out.padTo(offsets[DifferenceFileFormat.KIND]);
+      out.copy(spillFiles[1]);
+      out.padTo(offsets[DifferenceFileFormat.ROW]);
+      out.writeInts(rows, recordCount);
+      out.padTo(offsets[DifferenceFileFormat.COLUMN]);
+      out.writeInts(columns, recordCount);
+      out.padTo(offsets[DifferenceFileFormat.VALUE1]);
+      out.copy(spillFiles[2]);
+      out.padTo(offsets[DifferenceFileFormat.VALUE2]);
+      out.copy(spillFiles[3]);
+      out.padTo(offsets[DifferenceFileFormat.VALUE3]);
+      out.copy(spillFiles[4]);
+      out.padTo(offsets[DifferenceFileFormat.ROW_INDEX]);
+      out.writeInts(rowIndex, rowIndex.length);
+      out.padTo(offsets[DifferenceFileFormat.COLUMN_DIR]);
+      out.writeInts(columnDir, columnDir.length);
+      out.padTo(offsets[DifferenceFileFormat.COLUMN_INDEX]);
+      out.writeInts(columnIndex, columnIndex.length);
+    }
+  }
+
+  // Record ids ordered by row, ties kept in write order
+  private int[] buildRowIndex() {
+    long[] keys = new long[recordCount];
+    for (int i = 0; i < recordCount; i++) {
+      keys[i] = ((long) rows[i] << 32) | i;
+    }
+    Arrays.sort(keys);
+
+    int[] index = new int[recordCount];
+    for (int i = 0; i < recordCount; i++) {
+      index[i] = (int) keys[i];
+    }
+    return index;
+  }
+
+  // Cell record ids ordered by column, then by their position in the row index
+  private int[] buildColumnIndex(int[] rowIndex) throws IOException {
+    byte[] kindOf = Files.readAllBytes(spillFiles[1]);
+    long[] keys = new long[cellCount];
+    int n = 0;
+    for (int rank = 0; rank < rowIndex.length; rank++) {
+      int id = rowIndex[rank];
+      if (kindOf[id] == DifferenceFileFormat.KIND_CELL) {
+        keys[n++] = ((long) columns[id] << 32) | rank;
+      }
+    }
+    Arrays.sort(keys);
+
+    int[] index = new int[cellCount];
+    for (int i = 0; i < cellCount; i++) {
+      index[i] = rowIndex[(int) keys[i]];
+    }
+    return index;
+  }
+
+  // (column, start, count) triples pointing into the column index
+  private int[] buildColumnDirectory(int[] columnIndex) {
+    int[] dir = new int[0];
+    int entries = 0;
+    int start = 0;
+    while (start < columnIndex.length) {
+      int column = columns[columnIndex[start]];
+      int end = start;
+      while (end < columnIndex.length && columns[columnIndex[end]] == column) {
+        end++;
+      }
+      if ((entries + 1) * 3 > dir.length) {
+        dir = Arrays.copyOf(dir, Math.max(24, dir.length * 2));
+      }
+      dir[entries * 3] = column;
+      dir[entries * 3 + 1] = start;
+      dir[entries * 3 + 2] = end - start;
+      entries++;
+      start = end;
+    }
+    return Arrays.copyOf(dir, entries * 3);
+  }
+
+  private DataOutputStream openSpill(int slot) throws IOException {
+    Path dir = target.toAbsolutePath().getParent();
+    spillFiles[slot] = Files.createTempFile(dir, "csvd", ".tmp");
+    return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFiles[slot])));
+  }
+
+  private static class CountingOutput extends DataOutputStream {
+    private final Counter counter;
+
+    CountingOutput(OutputStream out) {
+      this(new Counter(new BufferedOutputStream(out, 1 << 16)));
+    }
+
+    private CountingOutput(Counter counter) {
+      super(counter);
+      this.counter = counter;
+    }
+
+    void padTo(long position) throws IOException {
+      while (counter.count < position) {
+        writeByte(0);
+      }
+    }
+
+    void writeInts(int[] values, int length) throws IOException {
+      for (int i = 0; i < length; i++) {
+        writeInt(values[i]);
+      }
+    }
+
+    void copy(Path file) throws IOException {
+      try (InputStream in = Files.newInputStream(file)) {
+        byte[] buffer = new byte[1 << 16];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          write(buffer, 0, read);
+        }
+      }
+    }
+  }
+
+  private static class Counter extends FilterOutputStream {
+    long count = 0;
+
+    Counter(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+  }
+}
@@ -0,0 +1,4 @@
+// Receives differences as a comparison finds them
+interface DifferenceSink {
+  void addDifference(Difference difference);
+}
@@ -19,4 +19,9 @@ class MissingRowDifference extends Difference {
                         " Content: %s\n",
                         rowNumber, missingFromFile, rowContent);
   }
+
+  // Getters
+  public int getRowNumber() { return rowNumber; }
+  public String getMissingFromFile() { return missingFromFile; }
+  public String getRowContent() { return rowContent; }
 }
@@ -17,6 +17,9 @@ public class ReportGenerator {
       } else {
         System.out.println("RESULT: FILES ARE NOT IDENTICAL");
         System.out.println("Total Difference Found: " + result.getDifferenceCount());
+        if (result.isTruncated()) {
+          System.out.println("Comparison stopped early, more differences may exist");
+        }
         System.out.println();
 
         // Group differences by type for better triaging
@@ -37,4 +40,65 @@ public class ReportGenerator {
       System.out.println("END OF REPORT");
       System.out.println("==========================================");
   }
+
+  // Same report, streamed from a saved difference file instead of an in-memory result
+  public void generateReport(DifferenceFileReader reader) {
+    System.out.println("==========================================");
+    System.out.println("CSV COMPARISON REPORT");
+    System.out.println("==========================================");
+    System.out.println("File 1: " + reader.getFile1Path());
+    System.out.println("File 2: " + reader.getFile2Path());
+    System.out.println("==========================================");
+
+    if (reader.isIdentical()) {
+      System.out.println("RESULT: FILES ARE IDENTICAL");
+    } else {
+      System.out.println("RESULT: FILES ARE NOT IDENTICAL");
+      System.out.println("Total Difference Found: " + reader.getDifferenceCount());
+      System.out.println();
+
+      for (String type : reader.getDifferenceTypes()) {
+        System.out.println("== " + type.toUpperCase() + " ==");
+        for (Difference diff : reader.differencesOfType(type)) {
+          System.out.println(diff.getDetailedReport());
+        }
+      }
+    }
+    System.out.println("==========================================");
+    System.out.println("END OF REPORT");
+    System.out.println("==========================================");
+  }
+
+  public void generateReport(ThreeWayComparisonResult result) {
+    System.out.println("==========================================");
+    System.out.println("CSV THREE-WAY COMPARISON REPORT");
+    System.out.println("==========================================");
+    System.out.println("Baseline: " + result.getBaselinePath());
+    System.out.println("Expected: " + result.getExpectedPath());
+    System.out.println("Actual:   " + result.getActualPath());
+    System.out.println("==========================================");
+
+    System.out.println(result.hasRegressions()
+        ? "RESULT: NEW REGRESSIONS FOUND"
+        : "RESULT: NO NEW REGRESSIONS");
+    for (DifferenceClassification classification : DifferenceClassification.values()) {
+      System.out.println(classification.getLabel() + ": " + result.getDifferenceCount(classification));
+    }
+    if (result.isTruncated()) {
+      System.out.println("Comparison stopped early, more differences may exist");
+    }
+    System.out.println();
+
+    for (DifferenceClassification classification : DifferenceClassification.values()) {
+      if (result.getDifferenceCount(classification) == 0) continue;
+
+      System.out.println("== " + classification.getLabel().toUpperCase() + " ==");
+      for (Difference diff : result.getDifferences(classification)) {
+        System.out.println(diff.getDetailedReport());
+      }
+    }
+    System.out.println("==========================================");
+    System.out.println("END OF REPORT");
+    System.out.println("==========================================");
+  }
 }
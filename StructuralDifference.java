@@ -1,9 +1,16 @@
 class StructuralDifference extends Difference {
+  private int row;
   private String file1Info;
   private String file2Info;
 
   public StructuralDifference(String description, String file1Info, String file2Info) {
+    this(0, description, file1Info, file2Info);
+  }
+
+  // Row is 1-based for differences in a single row, 0 for whole-file differences
+  public StructuralDifference(int row, String description, String file1Info, String file2Info) {
     super("Structural Difference", description);
+    this.row = row;
     this.file1Info = file1Info;
     this.file2Info = file2Info;
   }
@@ -16,4 +23,9 @@ class StructuralDifference extends Difference {
                         " File2: %s\n",
                         description, file1Info, file2Info);
   }
+
+  // Getters
+  public int getRow() { return row; }
+  public String getFile1Info() { return file1Info; }
+  public String getFile2Info() { return file2Info; }
 }
@@ -39,6 +39,12 @@ public class TestDataGenerator {
       // TC10: Different data types
       createDifferentDataTypes();
 
+      // TC11: Reordered and added columns
+      createReorderedColumns();
+
+      // TC12: Baseline, expected and actual outputs
+      createThreeWayFiles();
+
       System.out.println("All test data files generated successfully");
 
     } catch (IOException e) {
@@ -220,6 +226,56 @@ public class TestDataGenerator {
     writeFile("test_different_types_2.csv", file2);
   }
 
+  // TC11
+  private void createReorderedColumns() throws IOException {
+    String[] file1 = {
+      "ID,Name,Age,City",
+      "1,John,25,New York",
+      "2,Jane,30,Chicago",
+      "3,Bob,35,Los Angeles"
+    };
+
+    String[] file2 = {
+      "ID,City,Name,Country,Age",
+      "1,New York,John,USA,25",
+      "2,Boston,Jane,USA,30", // Diff city
+      "3,Los Angeles,Bob,USA,35"
+    };
+
+    writeFile("test_reordered_columns_1.csv", file1);
+    writeFile("test_reordered_columns_2.csv", file2);
+  }
+
+  // TC12
+  private void createThreeWayFiles() throws IOException {
+    String[] baseline = {
+      "ID,Name,Age,City",
+      "1,John,25,New York",
+      "2,Jane,31,Chicago", // Wrong age, fixed in actual
+      "3,Bob,35,Boston" // Wrong city, still wrong in actual
+    };
+
+    String[] expected = {
+      "ID,Name,Age,City",
+      "1,John,25,New York",
+      "2,Jane,30,Chicago",
+      "3,Bob,35,Los Angeles",
+      "4,Jim,40,Denver"
+    };
+
+    String[] actual = {
+      "ID,Name,Age,City",
+      "1,Jon,25,New York", // New regression
+      "2,Jane,30,Chicago",
+      "3,Bob,35,Boston"
+      // Missing row: Jim, also missing from baseline
+    };
+
+    writeFile("test_three_way_baseline.csv", baseline);
+    writeFile("test_three_way_expected.csv", expected);
+    writeFile("test_three_way_actual.csv", actual);
+  }
+
   private void writeFile(String filename, String[] lines) throws IOException {
     try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
       for (String line : lines) {
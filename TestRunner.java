@@ -1,5 +1,8 @@
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
+import java.util.function.BooleanSupplier;
 
 public class TestRunner {
   
@@ -29,6 +32,16 @@ public class TestRunner {
     }
   }
 
+  private static class FeatureTest {
+    String description;
+    BooleanSupplier check;
+
+    FeatureTest(String description, BooleanSupplier check) {
+      this.description = description;
+      this.check = check;
+    }
+  }
+
   public static void main(String[] args) {
     TestRunner runner = new TestRunner();
 
@@ -48,13 +61,20 @@ public class TestRunner {
     int passed = 0;
     int failed = 0;
 
-    for (int i = 0; i < testCases.size(); i++) {
-      TestCase testCase = testCases.get(i);
+    List<FeatureTest> featureTests = createFeatureTests();
+    int total = testCases.size() + featureTests.size();
+
+    for (int i = 0; i < total; i++) {
+      String description = i < testCases.size()
+          ? testCases.get(i).description
+          : featureTests.get(i - testCases.size()).description;
       System.out.println("=".repeat(60));
-      System.out.printf("TEST %d: %s%n", i + 1, testCase.description);
+      System.out.printf("TEST %d: %s%n", i + 1, description);
       System.out.println("=".repeat(60));
 
-      boolean result = runSingleTest(testCase);
+      boolean result = i < testCases.size()
+          ? runSingleTest(testCases.get(i))
+          : runFeatureTest(featureTests.get(i - testCases.size()));
       if (result) {
         System.out.println("PASSED");
         passed++;
@@ -67,10 +87,10 @@ public class TestRunner {
     System.out.println("=".repeat(60));
     System.out.println("TEST SUMMARY");
     System.out.println("=".repeat(60));
-    System.out.printf("Total Tests: %d%n", testCases.size());
+    System.out.printf("Total Tests: %d%n", total);
     System.out.printf("Passed: %d%n", passed);
     System.out.printf("Failed: %d%n", failed);
-    System.out.printf("Success Rate: %.1f%%%n", (passed * 100.0) / testCases.size());
+    System.out.printf("Success Rate: %.1f%%%n", (passed * 100.0) / total);
     System.out.println("=".repeat(60));
   }
 
@@ -231,4 +251,410 @@ public class TestRunner {
       return false;
     }
   }
-}
\ No newline at end of file
+
+  private List<FeatureTest> createFeatureTests() {
+    List<FeatureTest> featureTests = new ArrayList<>();
+
+    // Difference file: round trip (TC3 data)
+    featureTests.add(new FeatureTest(
+      "Saved difference file should read back the same differences",
+      this::testDifferenceFileRoundTrip
+    ));
+
+    // Difference file: indexed queries on a large file
+    featureTests.add(new FeatureTest(
+      "Row and column queries on a large difference file should use the indexes",
+      this::testDifferenceFileQueries
+    ));
+
+    // Header alignment (TC11 data)
+    featureTests.add(new FeatureTest(
+      "Reordered and added columns should be reported once when aligned by header",
+      this::testHeaderAlignment
+    ));
+
+    // CSV scanner: RFC 4180 quoting and dialects
+    featureTests.add(new FeatureTest(
+      "Scanner should handle multi-line quoted fields, escaped quotes, dialects and CRLF",
+      this::testCSVScanner
+    ));
+
+    // Three-way comparison (TC12 data)
+    featureTests.add(new FeatureTest(
+      "Three-way comparison should classify regressions, pre-existing and fixed differences",
+      this::testThreeWayComparison
+    ));
+
+    // Verdict mode: stopping at the threshold (TC1 and TC3 data)
+    featureTests.add(new FeatureTest(
+      "Verdict mode should stop at the difference threshold",
+      this::testVerdictMode
+    ));
+
+    // Verdict mode: exit codes
+    featureTests.add(new FeatureTest(
+      "Verdict mode should exit with distinct codes for identical, different and error",
+      this::testVerdictExitCodes
+    ));
+
+    return featureTests;
+  }
+
+  private boolean runFeatureTest(FeatureTest featureTest) {
+    try {
+      return featureTest.check.getAsBoolean();
+    } catch (Exception e) {
+      System.out.printf("FAIL: Unexpected exception: %s%n", e.getMessage());
+      e.printStackTrace();
+      return false;
+    }
+  }
+
+  private boolean testDifferenceFileRoundTrip() {
+    ComparisonResult result = new CSVComparator().compareFiles(
+        "test_different_rows_1.csv", "test_different_rows_2.csv");
+    Path file = Paths.get("test_different_rows.csvd");
+
+    try {
+      // Saved through the command line, which streams differences into the file
+      int exitCode = CSVComparator.run(new String[] {
+          "test_different_rows_1.csv", "test_different_rows_2.csv", "--save", file.toString()});
+      if (exitCode != CSVComparator.EXIT_IDENTICAL) {
+        System.out.printf("FAIL: Expected exit code %d from --save, got %d%n", CSVComparator.EXIT_IDENTICAL, exitCode);
+        return false;
+      }
+      try (DifferenceFileReader reader = new DifferenceFileReader(file)) {
+        System.out.printf("Saved %d differences in %d bytes%n", reader.getDifferenceCount(), Files.size(file));
+
+        List<String> expected = new ArrayList<>();
+        for (Difference diff : result.getDifferences()) {
+          expected.add(diff.getType() + ": " + diff.getDetailedReport());
+        }
+        List<String> actual = new ArrayList<>();
+        for (Difference diff : reader.differences()) {
+          actual.add(diff.getType() + ": " + diff.getDetailedReport());
+        }
+        if (!expected.equals(actual)) {
+          System.out.printf("FAIL: Expected %s, got %s%n", expected, actual);
+          return false;
+        }
+
+        int missingRows = 0;
+        for (Difference diff : reader.differencesInRows(5, 6)) {
+          if (diff instanceof MissingRowDifference) missingRows++;
+        }
+        if (missingRows != 2) {
+          System.out.printf("FAIL: Expected 2 missing rows in rows 5-6, got %d%n", missingRows);
+          return false;
+        }
+        if (!reader.getFile1Path().equals(result.getFile1Path()) || reader.isIdentical()) {
+          return false;
+        }
+      }
+
+      // An aborted write must leave the existing file as it was
+      byte[] saved = Files.readAllBytes(file);
+      try (DifferenceFileWriter writer = new DifferenceFileWriter(file, "a.csv", "b.csv")) {
+        writer.write(new CellDifference(1, 1, "x", "y"));
+        writer.abort();
+      }
+      if (!Arrays.equals(saved, Files.readAllBytes(file))) {
+        System.out.println("FAIL: Aborted write replaced the existing difference file");
+        return false;
+      }
+      return true;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      file.toFile().delete();
+    }
+  }
+
+  private boolean testDifferenceFileQueries() {
+    int rowCount = 200000;
+    Path file = Paths.get("test_large_differences.csvd");
+
+    try {
+      try (DifferenceFileWriter writer = new DifferenceFileWriter(file, "large_1.csv", "large_2.csv")) {
+        writer.write(new StructuralDifference("Row count mismatch", "File1: 1 rows", "File2: 2 rows"));
+        for (int row = 1; row <= rowCount; row++) {
+          for (int col = 1; col <= 3; col++) {
+            writer.write(new CellDifference(row, col, "old" + (row % 10), "new" + (row % 10)));
+          }
+        }
+        writer.write(new StructuralDifference(rowCount, "Column count mismatch in row " + rowCount,
+            "File1: 3 columns", "File2: 4 columns"));
+      }
+
+      try (DifferenceFileReader reader = new DifferenceFileReader(file)) {
+        System.out.printf("Saved %d differences in %d bytes%n", reader.getDifferenceCount(), Files.size(file));
+
+        int inColumn = 0;
+        for (Difference diff : reader.differencesInColumn(3, 100000, 100099)) {
+          CellDifference cell = (CellDifference) diff;
+          if (cell.getColumn() != 3 || cell.getRow() < 100000 || cell.getRow() > 100099) {
+            System.out.printf("FAIL: Unexpected difference %s%n", cell.getDescription());
+            return false;
+          }
+          inColumn++;
+        }
+        int inRows = 0;
+        for (Difference diff : reader.differencesInRows(rowCount, rowCount)) {
+          inRows++;
+        }
+        System.out.printf("Column 3, rows 100000-100099: %d, last row: %d%n", inColumn, inRows);
+        return inColumn == 100 && inRows == 4
+            && reader.getDifferenceCount() == rowCount * 3 + 2
+            && !reader.differencesInColumn(4, 1, rowCount).iterator().hasNext();
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private boolean testHeaderAlignment() {
+    CSVComparator comparator = new CSVComparator();
+    comparator.setAlignColumnsByHeader(true);
+    ComparisonResult result = comparator.compareFiles(
+        "test_reordered_columns_1.csv", "test_reordered_columns_2.csv");
+
+    System.out.printf("Differences found: %d%n", result.getDifferenceCount());
+    List<String> descriptions = new ArrayList<>();
+    for (Difference diff : result.getDifferences()) {
+      System.out.printf("  - %s: %s%n", diff.getType(), diff.getDescription());
+      descriptions.add(diff.getDescription());
+    }
+
+    List<String> expected = Arrays.asList(
+        "Column added: Country",
+        "Column order changed",
+        "Row 3, Column 4: 'Chicago' vs 'Boston'");
+    if (!descriptions.equals(expected)) {
+      System.out.printf("FAIL: Expected %s%n", expected);
+      return false;
+    }
+
+    // Renamed headers show up as one removed and one added column, not as per-row cell differences
+    ComparisonResult renamed = comparator.compareFiles(
+        "test_different_headers_1.csv", "test_different_headers_2.csv");
+    for (Difference diff : renamed.getDifferences()) {
+      if (diff instanceof CellDifference) {
+        System.out.printf("FAIL: Unexpected cell difference %s%n", diff.getDescription());
+        return false;
+      }
+    }
+    if (renamed.getDifferenceCount() != 4) {
+      return false;
+    }
+
+    // A short row missing a matched column on one side only is still compared
+    try {
+      Path short1 = Files.createTempFile("short_row_1", ".csv");
+      Path short2 = Files.createTempFile("short_row_2", ".csv");
+      try {
+        Files.write(short1, Arrays.asList("A,B,C", "1,2"));
+        Files.write(short2, Arrays.asList("A,C,B", "1,3"));
+        List<String> shortRow = new ArrayList<>();
+        for (Difference diff : comparator.compareFiles(short1.toString(), short2.toString()).getDifferences()) {
+          shortRow.add(diff.getDescription());
+        }
+        List<String> expectedShortRow = Arrays.asList(
+            "Column order changed",
+            "Row 2, Column 2: '2' vs ''",
+            "Row 2, Column 3: '' vs '3'");
+        if (!shortRow.equals(expectedShortRow)) {
+          System.out.printf("FAIL: Expected %s, got %s%n", expectedShortRow, shortRow);
+          return false;
+        }
+      } finally {
+        Files.deleteIfExists(short1);
+        Files.deleteIfExists(short2);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return true;
+  }
+
+  private boolean testCSVScanner() {
+    String[][] expected = {
+      {"ID", "Note", "City"},
+      {"1", "line one\nline two", "New York"},
+      {"2", "say \"hi\"", ""},
+      {"3", "", "Los Angeles"}
+    };
+    String content =
+        "ID,Note,City\r\n"
+      + "1,\"line one\nline two\",New York\r\n"
+      + "2,\"say \"\"hi\"\"\",\r\n"
+      + "3,,Los Angeles";
+
+    boolean passed = true;
+    String[][] dialects = {{",", ","}, {"tab", "\t"}, {"pipe", "|"}, {"semicolon", ";"}};
+    for (String[] dialect : dialects) {
+      String text = content.replace(",", dialect[1]);
+      // A tiny buffer forces fields and CRLF pairs across refills
+      for (int bufferSize : new int[] {16, 1 << 16}) {
+        CSVScanner scanner = new CSVScanner(dialect[1].charAt(0), bufferSize);
+        List<String[]> records = new ArrayList<>();
+        try (CSVScanner.RecordReader reader = scanner.open(
+            new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)))) {
+          String[] record;
+          while ((record = reader.nextRecord()) != null) {
+            records.add(record);
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+
+        boolean matches = records.size() == expected.length;
+        for (int i = 0; matches && i < expected.length; i++) {
+          matches = Arrays.equals(expected[i], records.get(i));
+        }
+        if (!matches) {
+          System.out.printf("FAIL: %s dialect, buffer %d: got %s%n", dialect[0], bufferSize,
+              Arrays.deepToString(records.toArray()));
+          passed = false;
+        }
+      }
+    }
+    System.out.printf("Dialects checked: %d%n", dialects.length);
+    return passed;
+  }
+
+  private boolean testThreeWayComparison() {
+    ThreeWayComparisonResult result = new ThreeWayComparator().compareFiles(
+        "test_three_way_baseline.csv", "test_three_way_expected.csv", "test_three_way_actual.csv");
+
+    Map<DifferenceClassification, List<String>> expected = new EnumMap<>(DifferenceClassification.class);
+    expected.put(DifferenceClassification.NEW_REGRESSION, Arrays.asList(
+        "Row 2, Column 2: 'John' vs 'Jon'"));
+    expected.put(DifferenceClassification.PRE_EXISTING, Arrays.asList(
+        "Row 4, Column 4: 'Los Angeles' vs 'Boston'",
+        "Row 5 missing from Actual",
+        "Row count mismatch"));
+    expected.put(DifferenceClassification.FIXED, Arrays.asList(
+        "Row 3, Column 3: '30' vs '31'"));
+
+    boolean passed = true;
+    for (DifferenceClassification classification : DifferenceClassification.values()) {
+      List<String> descriptions = new ArrayList<>();
+      for (Difference diff : result.getDifferences(classification)) {
+        descriptions.add(diff.getDescription());
+      }
+      System.out.printf("%s: %s%n", classification.getLabel(), descriptions);
+      if (!descriptions.equals(expected.get(classification))) {
+        System.out.printf("FAIL: Expected %s%n", expected.get(classification));
+        passed = false;
+      }
+    }
+    if (!passed || !result.hasRegressions() || result.isTruncated()) {
+      return false;
+    }
+
+    // Fail-fast stops at the row of the first new regression, before anything later is read
+    ThreeWayComparisonResult stopped = new ThreeWayComparator().compareFiles(
+        "test_three_way_baseline.csv", "test_three_way_expected.csv", "test_three_way_actual.csv", 1);
+    System.out.printf("Fail-fast: %d regression, %d pre-existing, %d fixed (truncated=%b)%n",
+        stopped.getDifferenceCount(DifferenceClassification.NEW_REGRESSION),
+        stopped.getDifferenceCount(DifferenceClassification.PRE_EXISTING),
+        stopped.getDifferenceCount(DifferenceClassification.FIXED), stopped.isTruncated());
+    return stopped.isTruncated()
+        && stopped.getDifferenceCount(DifferenceClassification.NEW_REGRESSION) == 1
+        && stopped.getDifferenceCount(DifferenceClassification.PRE_EXISTING) == 0
+        && stopped.getDifferenceCount(DifferenceClassification.FIXED) == 0;
+  }
+
+  private boolean testVerdictMode() {
+    CSVComparator comparator = new CSVComparator();
+
+    ComparisonResult identical = comparator.compareUntil("test_identical_1.csv", "test_identical_2.csv", 1);
+    ComparisonResult full = comparator.compareUntil("test_different_rows_1.csv", "test_different_rows_2.csv", 100);
+    ComparisonResult first = comparator.compareUntil("test_different_rows_1.csv", "test_different_rows_2.csv", 1);
+    System.out.printf("Identical: %b, full: %d differences, fail-fast: %d difference (truncated=%b)%n",
+        identical.isIdentical(), full.getDifferenceCount(), first.getDifferenceCount(), first.isTruncated());
+    if (!identical.isIdentical() || identical.isTruncated()
+        || full.getDifferenceCount() != 4 || full.isTruncated()
+        || first.getDifferenceCount() != 1 || !first.isTruncated()
+        || !(first.getDifferences().get(0) instanceof CellDifference)) {
+      return false;
+    }
+
+    // A mismatch in row 2 of a large file should not require reading the rest
+    Path file1 = Paths.get("test_verdict_large_1.csv");
+    Path file2 = Paths.get("test_verdict_large_2.csv");
+    try {
+      try (BufferedWriter writer1 = Files.newBufferedWriter(file1);
+           BufferedWriter writer2 = Files.newBufferedWriter(file2)) {
+        writer1.write("ID,Name,Age,City\n");
+        writer2.write("ID,Name,Age,City\n");
+        writer2.write("0,Changed,0,Nowhere\n");
+        for (int row = 0; row < 500000; row++) {
+          String line = row + ",Name " + row + "," + (row % 90) + ",City " + (row % 50) + "\n";
+          writer1.write(line);
+          if (row > 0) writer2.write(line);
+        }
+      }
+
+      long start = System.nanoTime();
+      ComparisonResult early = comparator.compareUntil(file1.toString(), file2.toString(), 1);
+      long verdictTime = System.nanoTime() - start;
+      start = System.nanoTime();
+      ComparisonResult complete = comparator.compareFiles(file1.toString(), file2.toString());
+      long fullTime = System.nanoTime() - start;
+
+      System.out.printf("Large file: verdict %.1f ms (%d differences), full comparison %.1f ms (%d differences)%n",
+          verdictTime / 1e6, early.getDifferenceCount(), fullTime / 1e6, complete.getDifferenceCount());
+      return early.getDifferenceCount() == 1 && early.isTruncated() && !complete.isTruncated();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      try {
+        Files.deleteIfExists(file1);
+        Files.deleteIfExists(file2);
+      } catch (IOException e) {
+        System.out.printf("Could not delete test file: %s%n", e.getMessage());
+      }
+    }
+  }
+
+  private boolean testVerdictExitCodes() {
+    Object[][] cases = {
+      {CSVComparator.EXIT_IDENTICAL, new String[] {"test_identical_1.csv", "test_identical_2.csv", "--fail-fast"}},
+      {CSVComparator.EXIT_DIFFERENT, new String[] {"test_different_cells_1.csv", "test_different_cells_2.csv", "--fail-fast"}},
+      {CSVComparator.EXIT_DIFFERENT, new String[] {"test_three_way_expected.csv", "test_three_way_actual.csv",
+          "--baseline", "test_three_way_baseline.csv", "--fail-fast"}},
+      {CSVComparator.EXIT_ERROR, new String[] {"test_identical_1.csv", "test_identical_2.csv", "--max-differences", "0"}},
+      {CSVComparator.EXIT_ERROR, new String[] {"test_identical_1.csv", "test_identical_2.csv", "--max-differences", "abc"}},
+      {CSVComparator.EXIT_ERROR, new String[] {"test_identical_1.csv", "test_identical_2.csv", "--fail-fast", "--delimiter", "xx"}},
+      {CSVComparator.EXIT_ERROR, new String[] {"test_identical_1.csv", "--fail-fast"}},
+      {CSVComparator.EXIT_ERROR, new String[] {"test_missing_file.csv", "test_identical_2.csv", "--fail-fast"}},
+      {CSVComparator.EXIT_ERROR, new String[] {"test_identical_1.csv", "test_identical_2.csv",
+          "--fail-fast", "--save", "test_verdict.csvd"}},
+      {CSVComparator.EXIT_ERROR, new String[] {"test_three_way_expected.csv", "test_three_way_actual.csv",
+          "--baseline", "test_three_way_baseline.csv", "--align-headers"}}
+    };
+
+    boolean passed = true;
+    PrintStream out = System.out;
+    for (Object[] testCase : cases) {
+      String[] args = (String[]) testCase[1];
+      int exitCode;
+      // Reports from the runs are not part of this test's output
+      System.setOut(new PrintStream(new ByteArrayOutputStream()));
+      try {
+        exitCode = CSVComparator.run(args);
+      } finally {
+        System.setOut(out);
+      }
+      System.out.printf("Exit %d: %s%n", exitCode, String.join(" ", args));
+      if (exitCode != (int) testCase[0]) {
+        System.out.printf("FAIL: Expected exit code %d%n", (int) testCase[0]);
+        passed = false;
+      }
+    }
+    return passed;
+  }
+}
@@ -0,0 +1,121 @@
+import java.io.*;
+import java.util.*;
+
+// Compares an actual output against both the expected output and the previous baseline.
+// All three files are streamed together one row at a time, so each is read exactly once.
+//
+// Differences are reported as expected vs actual, except for fixed ones, which are
+// reported as expected vs baseline since actual now matches.
+public class ThreeWayComparator {
+  private CSVScanner scanner = new CSVScanner();
+
+  public void setScanner(CSVScanner scanner) {
+    this.scanner = scanner;
+  }
+
+  public ThreeWayComparisonResult compareFiles(String baselinePath, String expectedPath, String actualPath) {
+    return compareFiles(baselinePath, expectedPath, actualPath, 0);
+  }
+
+  // Stops reading once maxRegressions new regressions are found (0 reads everything).
+  // Pre-existing and fixed differences found up to that row are kept; the result is
+  // marked truncated when it stopped early.
+  public ThreeWayComparisonResult compareFiles(String baselinePath, String expectedPath, String actualPath,
+      int maxRegressions) {
+    ThreeWayComparisonResult result = new ThreeWayComparisonResult(baselinePath, expectedPath, actualPath);
+
+    try (CSVScanner.RecordReader baseline = scanner.open(baselinePath);
+         CSVScanner.RecordReader expected = scanner.open(expectedPath);
+         CSVScanner.RecordReader actual = scanner.open(actualPath)) {
+      int baselineRows = 0;
+      int expectedRows = 0;
+      int actualRows = 0;
+
+      for (int row = 1; ; row++) {
+        String[] b = nextRecord(baseline);
+        String[] e = nextRecord(expected);
+        String[] a = nextRecord(actual);
+        if (b == null && e == null && a == null) break;
+
+        if (b != null) baselineRows = row;
+        if (e != null) expectedRows = row;
+        if (a != null) actualRows = row;
+        compareRow(row, b, e, a, result);
+
+        int regressions = result.getDifferenceCount(DifferenceClassification.NEW_REGRESSION);
+        if (maxRegressions > 0 && regressions >= maxRegressions) {
+          // Closing the readers below abandons the rest of all three files
+          List<Difference> differences = result.getDifferences(DifferenceClassification.NEW_REGRESSION);
+          differences.subList(maxRegressions, regressions).clear();
+          result.setTruncated(true);
+          return result;
+        }
+      }
+
+      DifferenceClassification classification = DifferenceClassification.classify(
+          actualRows != expectedRows, baselineRows != expectedRows);
+      if (classification != null) {
+        result.addDifference(classification, new StructuralDifference(
+          "Row count mismatch",
+          "Expected: " + expectedRows + " rows",
+          classification == DifferenceClassification.FIXED
+              ? "Baseline: " + baselineRows + " rows"
+              : "Actual: " + actualRows + " rows"
+        ));
+      }
+      return result;
+    } catch (IOException e) {
+      System.err.println("Error reading files: " + e.getMessage());
+      return null;
+    }
+  }
+
+  private String[] nextRecord(CSVScanner.RecordReader reader) throws IOException {
+    String[] record = reader.nextRecord();
+    return record == null ? null : CSVComparator.trimValues(record);
+  }
+
+  private void compareRow(int row, String[] b, String[] e, String[] a, ThreeWayComparisonResult result) {
+    // Rows present in some files but not others
+    DifferenceClassification rowClassification = DifferenceClassification.classify(
+        (a == null) != (e == null), (b == null) != (e == null));
+    if (rowClassification != null) {
+      boolean fixed = rowClassification == DifferenceClassification.FIXED;
+      String[] content = e != null ? e : fixed ? b : a;
+      String missingFrom = e == null ? "Expected" : fixed ? "Baseline" : "Actual";
+      result.addDifference(rowClassification,
+          new MissingRowDifference(row, missingFrom, Arrays.toString(content)));
+    }
+    if (e == null || a == null) return;
+
+    // A row the baseline never produced is already reported as fixed above, so
+    // only what actual still gets wrong in it is reported below
+    DifferenceClassification widthClassification = DifferenceClassification.classify(
+        a.length != e.length, b == null || b.length != e.length);
+    if (widthClassification != null && !(widthClassification == DifferenceClassification.FIXED && b == null)) {
+      result.addDifference(widthClassification, new StructuralDifference(row,
+        "Column count mismatch in row " + row,
+        "Expected: " + e.length + " columns",
+        widthClassification == DifferenceClassification.FIXED
+            ? "Baseline: " + b.length + " columns"
+            : "Actual: " + a.length + " columns"
+      ));
+    }
+
+    int columns = Math.min(e.length, a.length);
+    for (int col = 0; col < columns; col++) {
+      String baselineValue = b != null && col < b.length ? b[col] : null;
+      DifferenceClassification classification = DifferenceClassification.classify(
+          !a[col].equals(e[col]), !e[col].equals(baselineValue));
+      if (classification == null) continue;
+
+      if (classification == DifferenceClassification.FIXED) {
+        if (baselineValue != null) {
+          result.addDifference(classification, new CellDifference(row, col + 1, e[col], baselineValue));
+        }
+      } else {
+        result.addDifference(classification, new CellDifference(row, col + 1, e[col], a[col]));
+      }
+    }
+  }
+}
@@ -0,0 +1,40 @@
+import java.util.*;
+
+public class ThreeWayComparisonResult {
+  private String baselinePath;
+  private String expectedPath;
+  private String actualPath;
+  private boolean truncated = false;
+  private Map<DifferenceClassification, List<Difference>> differences;
+
+  public ThreeWayComparisonResult(String baselinePath, String expectedPath, String actualPath) {
+    this.baselinePath = baselinePath;
+    this.expectedPath = expectedPath;
+    this.actualPath = actualPath;
+    this.differences = new EnumMap<>(DifferenceClassification.class);
+    for (DifferenceClassification classification : DifferenceClassification.values()) {
+      differences.put(classification, new ArrayList<>());
+    }
+  }
+
+  public void addDifference(DifferenceClassification classification, Difference difference) {
+    differences.get(classification).add(difference);
+  }
+
+  public boolean hasRegressions() {
+    return !differences.get(DifferenceClassification.NEW_REGRESSION).isEmpty();
+  }
+
+  // Getters
+  public String getBaselinePath() { return baselinePath; }
+  public String getExpectedPath() { return expectedPath; }
+  public String getActualPath() { return actualPath; }
+  public boolean isTruncated() { return truncated; }
+  public void setTruncated(boolean truncated) { this.truncated = truncated; }
+  public List<Difference> getDifferences(DifferenceClassification classification) {
+    return differences.get(classification);
+  }
+  public int getDifferenceCount(DifferenceClassification classification) {
+    return differences.get(classification).size();
+  }
+}